@@ -0,0 +1,414 @@
+package collections;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Map wrapper that remembers the {@code hashCode} of every key at insertion time so it can
+ * report bucket distribution, collision chains and keys that were mutated after insertion
+ * (see {@code map_WhatHappensIfKeyIsMutable}).
+ * <p>
+ * {@link #checkAndFallback()} rebuilds the backing map once the estimated probe cost passes
+ * the threshold or mutated keys are found. It also runs automatically after a number of puts
+ * (see {@link #setCheckInterval(int)}). Mutated keys are fixed by rehashing into a fresh
+ * {@link HashMap}. A degraded map only moves into a {@link TreeMap} if the caller supplied a
+ * comparator; otherwise it stays a {@link HashMap} and relies on its own treeification of long
+ * bins, so {@code null} keys and lookups with foreign key types keep working.
+ */
+public class DiagnosticMap<K, V> extends AbstractMap<K, V> {
+
+    public static final double DEFAULT_PROBE_COST_THRESHOLD = 4.0;
+    public static final int DEFAULT_CHECK_INTERVAL = 1024;
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    // key objects grouped by the hash code they had when they were inserted
+    private final Map<Integer, List<K>> keysByInsertionHash = new HashMap<>();
+    private final double probeCostThreshold;
+    private final Comparator<? super K> fallbackComparator;
+    private Map<K, V> delegate;
+    private int trackedKeys;
+    private int checkInterval = DEFAULT_CHECK_INTERVAL;
+    private int putsSinceCheck;
+    private int sizeAtLastCheck;
+    private EntrySet entrySet;
+    private KeySet keySet;
+
+    private DiagnosticMap(Map<K, V> delegate, double probeCostThreshold, Comparator<? super K> fallbackComparator) {
+        if (probeCostThreshold < 1.0) throw new IllegalArgumentException("Probe cost threshold must be at least 1!");
+        this.delegate = delegate;
+        this.probeCostThreshold = probeCostThreshold;
+        this.fallbackComparator = fallbackComparator;
+        retrack();
+    }
+
+    /**
+     * Wraps the given map; all reads and writes go through to it.
+     */
+    public static <K, V> DiagnosticMap<K, V> wrap(Map<K, V> map) {
+        return wrap(map, DEFAULT_PROBE_COST_THRESHOLD);
+    }
+
+    public static <K, V> DiagnosticMap<K, V> wrap(Map<K, V> map, double probeCostThreshold) {
+        if (map == null) throw new IllegalArgumentException("Map must not be null!");
+        return new DiagnosticMap<>(map, probeCostThreshold, null);
+    }
+
+    /**
+     * Like {@link #wrap(Map, double)}, but a degraded map falls back to a {@link TreeMap} ordered
+     * by {@code fallbackComparator}. The comparator must be consistent with {@code equals} and
+     * handle every key (including {@code null}) the map will be asked about.
+     */
+    public static <K, V> DiagnosticMap<K, V> wrap(Map<K, V> map, double probeCostThreshold,
+                                                  Comparator<? super K> fallbackComparator) {
+        if (map == null) throw new IllegalArgumentException("Map must not be null!");
+        if (fallbackComparator == null) throw new IllegalArgumentException("Comparator must not be null!");
+        return new DiagnosticMap<>(map, probeCostThreshold, fallbackComparator);
+    }
+
+    public Map<K, V> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * {@link #checkAndFallback()} runs once at least {@code puts} new keys, and at least as many
+     * as the map held at the previous check, were added. This keeps the O(n) check amortized O(1)
+     * per put. {@code 0} disables the automatic check.
+     */
+    public void setCheckInterval(int puts) {
+        if (puts < 0) throw new IllegalArgumentException("Check interval must not be negative!");
+        this.checkInterval = puts;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        // an existing mapping keeps its original key object; a mutated key is not found and
+        // gets a second mapping, while its stale one stays tracked under the old hash code
+        int sizeBefore = delegate.size();
+        V previous = delegate.put(key, value);
+        if (delegate.size() != sizeBefore) {
+            track(key);
+            if (checkInterval > 0 && ++putsSinceCheck >= Math.max(checkInterval, sizeAtLastCheck)) {
+                // the put already happened, so a map modified behind our back must not make it throw
+                if (trackedKeys != delegate.size()) retrack();
+                checkAndFallback();
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        int sizeBefore = delegate.size();
+        V previous = delegate.remove(key);
+        if (delegate.size() != sizeBefore) forget(key);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        keysByInsertionHash.clear();
+        trackedKeys = 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) keySet = new KeySet();
+        return keySet;
+    }
+
+    /**
+     * Computes the distribution of the current keys over the buckets of a {@link HashMap}
+     * sized for this map, placing every key by the hash code it was inserted with. Runs in O(n).
+     *
+     * @throws IllegalStateException if the wrapped map was modified without going through this wrapper
+     */
+    public HashProfile profile() {
+        if (trackedKeys != delegate.size()) {
+            throw new IllegalStateException(String.format(
+                    "Tracked %d keys but the wrapped map holds %d; was it modified directly?", trackedKeys, delegate.size()));
+        }
+        int buckets = tableSizeFor(trackedKeys);
+        int[] chains = new int[buckets];
+        Set<Integer> distinctHashCodes = new HashSet<>();
+        List<Object> mutatedKeys = new ArrayList<>();
+
+        for (Entry<Integer, List<K>> entry : keysByInsertionHash.entrySet()) {
+            int insertionHash = entry.getKey();
+            for (K key : entry.getValue()) {
+                if (Objects.hashCode(key) != insertionHash) {
+                    mutatedKeys.add(key);
+                }
+                distinctHashCodes.add(insertionHash);
+                chains[spread(insertionHash) & (buckets - 1)]++;
+            }
+        }
+
+        int occupied = 0;
+        int maxChain = 0;
+        long probes = 0;
+        for (int chain : chains) {
+            if (chain == 0) continue;
+            occupied++;
+            maxChain = Math.max(maxChain, chain);
+            // the i-th key of a chain needs i comparisons to be found
+            probes += (long) chain * (chain + 1) / 2;
+        }
+        double probeCost = trackedKeys == 0 ? 0.0 : (double) probes / trackedKeys;
+
+        return new HashProfile(trackedKeys, buckets, occupied, maxChain, distinctHashCodes.size(), probeCost, mutatedKeys);
+    }
+
+    /**
+     * Profiles the map and rebuilds the backing map if some keys were mutated after insertion,
+     * or if the probe cost passed the threshold and a rebuild can help: into a {@link TreeMap}
+     * when a fallback comparator was given, into a {@link HashMap} when the backing map is not one.
+     *
+     * @return {@code true} if the backing map was replaced
+     */
+    public boolean checkAndFallback() {
+        putsSinceCheck = 0;
+        sizeAtLastCheck = delegate.size();
+        if (delegate instanceof TreeMap) return false;
+
+        HashProfile profile = profile();
+        boolean degraded = profile.getProbeCost() > probeCostThreshold;
+
+        Map<K, V> rebuilt;
+        if (degraded && fallbackComparator != null) {
+            rebuilt = new TreeMap<>(fallbackComparator);
+        } else if (profile.hasMutatedKeys() || (degraded && !(delegate instanceof HashMap))) {
+            int capacity = tableSizeFor(trackedKeys);
+            rebuilt = delegate instanceof LinkedHashMap
+                    ? new LinkedHashMap<>(capacity, LOAD_FACTOR)
+                    : new HashMap<>(capacity, LOAD_FACTOR);
+        } else {
+            return false;
+        }
+
+        // current mappings first: a lookup finds the one stored under the key's current hash code,
+        // which is the newest write if a mutated key was put again
+        for (Entry<Integer, List<K>> entry : keysByInsertionHash.entrySet()) {
+            for (K key : entry.getValue()) {
+                if (Objects.hashCode(key) == entry.getKey()) {
+                    rebuilt.put(key, delegate.get(key));
+                }
+            }
+        }
+        // stale mappings of mutated keys only survive if the key has no newer mapping
+        for (Entry<K, V> entry : delegate.entrySet()) {
+            if (!rebuilt.containsKey(entry.getKey())) {
+                rebuilt.put(entry.getKey(), entry.getValue());
+            }
+        }
+        delegate = rebuilt;
+        retrack();
+        sizeAtLastCheck = delegate.size();
+        return true;
+    }
+
+    private void retrack() {
+        keysByInsertionHash.clear();
+        trackedKeys = 0;
+        for (K key : delegate.keySet()) {
+            track(key);
+        }
+    }
+
+    private void track(K key) {
+        keysByInsertionHash.computeIfAbsent(Objects.hashCode(key), h -> new ArrayList<>(1)).add(key);
+        trackedKeys++;
+    }
+
+    /**
+     * Stops tracking one key object after the delegate removed the mapping it finds for {@code key},
+     * i.e. the one stored under the key's current hash code.
+     */
+    private void forget(Object key) {
+        int hash = Objects.hashCode(key);
+        List<K> keys = keysByInsertionHash.get(hash);
+        if (keys != null && removeMatching(keys, key)) {
+            if (keys.isEmpty()) keysByInsertionHash.remove(hash);
+        } else {
+            // a mutated key whose only mapping was stale, or a key the fallback comparator
+            // considers equal to one with a different hash code
+            forgetSlow(key, null);
+        }
+    }
+
+    /**
+     * Like {@link #forget(Object)}, but for removals through an iterator, which may also hit the
+     * stale mapping of a mutated key.
+     */
+    private void forgetIterated(Object key) {
+        if (delegate.containsKey(key)) {
+            // the delegate still finds the key, so it dropped a stale mapping stored under an older hash
+            forgetSlow(key, Objects.hashCode(key));
+        } else {
+            forget(key);
+        }
+    }
+
+    private void forgetSlow(Object key, Integer excludedHash) {
+        for (Iterator<Entry<Integer, List<K>>> it = keysByInsertionHash.entrySet().iterator(); it.hasNext(); ) {
+            Entry<Integer, List<K>> entry = it.next();
+            if (!entry.getKey().equals(excludedHash) && removeMatching(entry.getValue(), key)) {
+                if (entry.getValue().isEmpty()) it.remove();
+                return;
+            }
+        }
+    }
+
+    private boolean removeMatching(List<K> keys, Object key) {
+        int match = -1;
+        for (int i = 0; i < keys.size() && match < 0; i++) {
+            if (keys.get(i) == key) match = i;
+        }
+        for (int i = 0; i < keys.size() && match < 0; i++) {
+            if (matches(keys.get(i), key)) match = i;
+        }
+        if (match < 0) return false;
+        keys.remove(match);
+        trackedKeys--;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean matches(K tracked, Object key) {
+        if (delegate instanceof TreeMap && fallbackComparator != null) {
+            return fallbackComparator.compare(tracked, (K) key) == 0;
+        }
+        return Objects.equals(tracked, key);
+    }
+
+    // same bit spreading as java.util.HashMap
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int tableSizeFor(int entries) {
+        long wanted = Math.max(1, (long) Math.ceil(entries / (double) LOAD_FACTOR));
+        int size = 1;
+        while (size < wanted && size < MAXIMUM_CAPACITY) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return delegate.entrySet().contains(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!delegate.entrySet().remove(o)) return false;
+            forget(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new TrackingIterator<>(delegate.entrySet().iterator(), Entry::getKey);
+        }
+
+        @Override
+        public void clear() {
+            DiagnosticMap.this.clear();
+        }
+    }
+
+    private class KeySet extends AbstractSet<K> {
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return delegate.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int sizeBefore = delegate.size();
+            DiagnosticMap.this.remove(o);
+            return delegate.size() != sizeBefore;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new TrackingIterator<>(delegate.keySet().iterator(), k -> k);
+        }
+
+        @Override
+        public void clear() {
+            DiagnosticMap.this.clear();
+        }
+    }
+
+    private class TrackingIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> it;
+        private final Function<T, K> keyOf;
+        private T last;
+        private boolean canRemove;
+
+        TrackingIterator(Iterator<T> it, Function<T, K> keyOf) {
+            this.it = it;
+            this.keyOf = keyOf;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public T next() {
+            last = it.next();
+            canRemove = true;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) throw new IllegalStateException();
+            K key = keyOf.apply(last);
+            it.remove();
+            forgetIterated(key);
+            canRemove = false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package collections;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bloom filter over the entries (key and value) of a map. It answers "might this entry be in
+ * the map?" with no false negatives and a configurable false-positive rate, so that
+ * {@link MapUtils#intersect(Map, Map, EntryBloomFilter)} only has to look up the candidates
+ * in a remote or on-disk map.
+ * <p>
+ * Entries are fingerprinted through a hash function applied to key and value. A filter that is
+ * shipped to another process is only meaningful if that function gives the same result in every
+ * JVM. The default {@link #STABLE_HASH} hashes enums by {@link Enum#name()} (their
+ * {@code hashCode} is identity-based) and everything else by {@code hashCode}, which is stable
+ * for {@link String} and the boxed primitives but not for classes relying on
+ * {@link Object#hashCode()}. For such keys or values, pass a stable hash function to
+ * {@link #of(Map, double, ToIntFunction)} and {@link #fromByteBuffer(ByteBuffer, ToIntFunction)};
+ * both sides must use the same one.
+ */
+public class EntryBloomFilter {
+
+    public static final ToIntFunction<Object> STABLE_HASH =
+            o -> o instanceof Enum ? ((Enum<?>) o).name().hashCode() : Objects.hashCode(o);
+
+    private static final int MAGIC = 0x4D554246; // "MUBF"
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int MAX_HASH_COUNT = 64;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final ToIntFunction<Object> hash;
+
+    private EntryBloomFilter(long[] bits, int hashCount, ToIntFunction<Object> hash) {
+        if (hash == null) throw new IllegalArgumentException("Hash function must not be null!");
+        this.bits = bits;
+        this.bitCount = (long) bits.length * Long.SIZE;
+        this.hashCount = hashCount;
+        this.hash = hash;
+    }
+
+    /**
+     * Creates an empty filter sized for the expected number of entries.
+     *
+     * @param falsePositiveRate target false-positive rate, between 0 and 1 (both exclusive)
+     */
+    public static EntryBloomFilter create(long expectedEntries, double falsePositiveRate) {
+        return create(expectedEntries, falsePositiveRate, STABLE_HASH);
+    }
+
+    public static EntryBloomFilter create(long expectedEntries, double falsePositiveRate, ToIntFunction<Object> hash) {
+        if (expectedEntries < 0) throw new IllegalArgumentException("Expected entries must not be negative!");
+        if (!(falsePositiveRate > 0.0 && falsePositiveRate < 1.0)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1!");
+        }
+        long n = Math.max(1, expectedEntries);
+        long optimalBits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+        // the serialized form has to fit into a single ByteBuffer
+        if (words > (Integer.MAX_VALUE - HEADER_BYTES) / Long.BYTES) {
+            throw new IllegalArgumentException("Filter would be too large");
+        }
+
+        long optimalHashCount = Math.round((double) words * Long.SIZE / n * Math.log(2));
+        int hashCount = (int) Math.min(MAX_HASH_COUNT, Math.max(1, optimalHashCount));
+        return new EntryBloomFilter(new long[(int) words], hashCount, hash);
+    }
+
+    public static <K, V> EntryBloomFilter of(Map<K, V> map, double falsePositiveRate) {
+        return of(map, falsePositiveRate, STABLE_HASH);
+    }
+
+    public static <K, V> EntryBloomFilter of(Map<K, V> map, double falsePositiveRate, ToIntFunction<Object> hash) {
+        EntryBloomFilter filter = create(map.size(), falsePositiveRate, hash);
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            filter.add(entry.getKey(), entry.getValue());
+        }
+        return filter;
+    }
+
+    /**
+     * Reads a filter written by {@link #toByteBuffer()}, starting at the buffer's position.
+     */
+    public static EntryBloomFilter fromByteBuffer(ByteBuffer buffer) {
+        return fromByteBuffer(buffer, STABLE_HASH);
+    }
+
+    /**
+     * Reads a filter written by {@link #toByteBuffer()}; {@code hash} must be the function the filter was built with.
+     */
+    public static EntryBloomFilter fromByteBuffer(ByteBuffer buffer, ToIntFunction<Object> hash) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            throw new IllegalArgumentException("Buffer is too short for an EntryBloomFilter");
+        }
+        if (buffer.getInt() != MAGIC) throw new IllegalArgumentException("Buffer does not hold an EntryBloomFilter");
+        int hashCount = buffer.getInt();
+        int words = buffer.getInt();
+        if (hashCount < 1 || hashCount > MAX_HASH_COUNT || words < 1) {
+            throw new IllegalArgumentException("Corrupt EntryBloomFilter header");
+        }
+        // check before allocating: the header may come from another process or a corrupt file
+        if (words > buffer.remaining() / Long.BYTES) {
+            throw new IllegalArgumentException(String.format(
+                    "Header announces %d words but only %d bytes follow", words, buffer.remaining()));
+        }
+
+        long[] bits = new long[words];
+        buffer.asLongBuffer().get(bits);
+        buffer.position((int) (buffer.position() + (long) words * Long.BYTES));
+        return new EntryBloomFilter(bits, hashCount, hash);
+    }
+
+    public void add(Object key, Object value) {
+        long h1 = fingerprint(key, value);
+        long h2 = Long.rotateLeft(h1, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(Object key, Object value) {
+        long h1 = fingerprint(key, value);
+        long h2 = Long.rotateLeft(h1, 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Number of bytes {@link #toByteBuffer()} produces.
+     */
+    public int getSerializedSize() {
+        return HEADER_BYTES + bits.length * Long.BYTES;
+    }
+
+    /**
+     * Serializes the filter into a new buffer, flipped and ready to be read or written to a channel.
+     */
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(getSerializedSize());
+        buffer.putInt(MAGIC).putInt(hashCount).putInt(bits.length);
+        buffer.asLongBuffer().put(bits);
+        buffer.position(buffer.limit());
+        buffer.flip();
+        return buffer;
+    }
+
+    // double hashing as in Kirsch and Mitzenmacher, "Less Hashing, Same Performance"
+    private long index(long combinedHash) {
+        return (combinedHash >>> 1) % bitCount;
+    }
+
+    private long fingerprint(Object key, Object value) {
+        long hash = ((long) this.hash.applyAsInt(key) << 32) ^ (this.hash.applyAsInt(value) & 0xFFFFFFFFL);
+        // murmur3 fmix64
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
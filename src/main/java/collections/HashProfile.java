@@ -0,0 +1,94 @@
+package collections;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of how the keys of a map spread over the buckets of a {@link java.util.HashMap}
+ * of the same size. Created by {@link DiagnosticMap#profile()}.
+ */
+public class HashProfile {
+
+    private final int entries;
+    private final int buckets;
+    private final int occupiedBuckets;
+    private final int maxChainLength;
+    private final int distinctHashCodes;
+    private final double probeCost;
+    private final List<Object> mutatedKeys;
+
+    HashProfile(int entries, int buckets, int occupiedBuckets, int maxChainLength, int distinctHashCodes,
+                double probeCost, List<Object> mutatedKeys) {
+        this.entries = entries;
+        this.buckets = buckets;
+        this.occupiedBuckets = occupiedBuckets;
+        this.maxChainLength = maxChainLength;
+        this.distinctHashCodes = distinctHashCodes;
+        this.probeCost = probeCost;
+        this.mutatedKeys = Collections.unmodifiableList(mutatedKeys);
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public int getOccupiedBuckets() {
+        return occupiedBuckets;
+    }
+
+    /**
+     * Number of entries that share their bucket with an entry inserted before them.
+     */
+    public int getCollisions() {
+        return entries - occupiedBuckets;
+    }
+
+    public int getMaxChainLength() {
+        return maxChainLength;
+    }
+
+    /**
+     * Number of different {@code hashCode} values; keys with equal hash codes collide in any table size.
+     */
+    public int getDistinctHashCodes() {
+        return distinctHashCodes;
+    }
+
+    /**
+     * Estimated number of key comparisons for a successful lookup, averaged over all keys.
+     */
+    public double getProbeCost() {
+        return probeCost;
+    }
+
+    /**
+     * Probe cost of the same number of keys spread uniformly over the same number of buckets.
+     */
+    public double getIdealProbeCost() {
+        return buckets == 0 ? 0.0 : 1.0 + (entries - 1) / (2.0 * buckets);
+    }
+
+    /**
+     * Keys whose {@code hashCode} differs from the one they had when they were inserted.
+     * These keys can no longer be found with {@code get}.
+     */
+    public List<Object> getMutatedKeys() {
+        return mutatedKeys;
+    }
+
+    public boolean hasMutatedKeys() {
+        return !mutatedKeys.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HashProfile[entries=%d, buckets=%d, occupied=%d, collisions=%d, maxChain=%d, " +
+                        "distinctHashCodes=%d, probeCost=%.2f (ideal %.2f), mutatedKeys=%d]",
+                entries, buckets, occupiedBuckets, getCollisions(), maxChainLength,
+                distinctHashCodes, probeCost, getIdealProbeCost(), mutatedKeys.size());
+    }
+}
@@ -10,12 +10,44 @@ public class MapUtils {
     }
 
     public static <K, V> Map<K, V> intersect(Map<K, V> m1, Map<K, V> m2) {
+        MapUtilsMetrics.Probe probe = MapUtilsMetrics.isEnabled()
+                ? MapUtilsMetrics.startIntersect((long) m1.size() + m2.size())
+                : null;
+
         Map<K, V> intersection = new HashMap<>(m1);
         intersection.entrySet().retainAll(m2.entrySet());
+
+        if (probe != null) probe.finish(intersection.size());
         return intersection;
     }
 
+    /**
+     * Intersects with a map that is expensive to read, e.g. one living in another process or on disk.
+     * {@code m2Filter} must have been built from {@code m2}; only the entries of {@code m1} that pass
+     * the filter are looked up in {@code m2}.
+     */
+    public static <K, V> Map<K, V> intersect(Map<K, V> m1, Map<K, V> m2, EntryBloomFilter m2Filter) {
+        return intersect(prefilter(m1, m2Filter), m2);
+    }
+
+    /**
+     * Entries of {@code m} that might also be in the map {@code filter} was built from.
+     */
+    public static <K, V> Map<K, V> prefilter(Map<K, V> m, EntryBloomFilter filter) {
+        Map<K, V> candidates = new HashMap<>();
+        for (Map.Entry<K, V> entry : m.entrySet()) {
+            if (filter.mightContain(entry.getKey(), entry.getValue())) {
+                candidates.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return candidates;
+    }
+
     public static <K> Map<K, K> removeTransitively(Map<K, K> m, K keyToRemove) {
+        MapUtilsMetrics.Probe probe = MapUtilsMetrics.isEnabled()
+                ? MapUtilsMetrics.startRemoveTransitively(m.size())
+                : null;
+
         Map<K, K> map = new HashMap<>();
         map.putAll(m);
 
@@ -34,10 +66,12 @@ public class MapUtils {
                     .collect(Collectors.toList());
 
             boolean hasChanged = workList.addAll(transitiveKeys);
+            if (probe != null) probe.iteration(workList.size());
             if (!hasChanged) break;
         }
 
         map.keySet().removeAll(workList);
+        if (probe != null) probe.finish(map.size());
         return map;
     }
-}
\ No newline at end of file
+}
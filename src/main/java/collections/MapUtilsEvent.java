@@ -0,0 +1,30 @@
+package collections;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("collections.MapUtils")
+@Label("MapUtils Operation")
+@Category("Collections")
+@Description("A single call to one of the MapUtils operations")
+class MapUtilsEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Input Size")
+    long inputSize;
+
+    @Label("Output Size")
+    long outputSize;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Work-List Growth")
+    @Description("Size of the work-list after each iteration of the fixed-point loop")
+    String workListGrowth;
+}
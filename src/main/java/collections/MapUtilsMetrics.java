@@ -0,0 +1,138 @@
+package collections;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Opt-in instrumentation for {@link MapUtils}. Disabled by default; enable it with
+ * {@link #setEnabled(boolean)} or the system property {@code collections.metrics.enabled=true}.
+ * While disabled, the operations only pay for a single volatile read.
+ * <p>
+ * When enabled, every call is recorded in an {@link OperationStats} and emitted as a
+ * {@code collections.MapUtils} JFR event (if a recording is running).
+ */
+public final class MapUtilsMetrics {
+
+    public static final String ENABLED_PROPERTY = "collections.metrics.enabled";
+
+    private static final OperationStats INTERSECT = new OperationStats("intersect");
+    private static final OperationStats REMOVE_TRANSITIVELY = new OperationStats("removeTransitively");
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private MapUtilsMetrics() {
+
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        MapUtilsMetrics.enabled = enabled;
+    }
+
+    public static OperationStatsMBean intersect() {
+        return INTERSECT;
+    }
+
+    public static OperationStatsMBean removeTransitively() {
+        return REMOVE_TRANSITIVELY;
+    }
+
+    public static void reset() {
+        INTERSECT.reset();
+        REMOVE_TRANSITIVELY.reset();
+    }
+
+    /**
+     * Registers one MBean per operation under {@code collections:type=MapUtils,operation=<name>}.
+     * Registering twice is a no-op.
+     */
+    public static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OperationStats stats : new OperationStats[]{INTERSECT, REMOVE_TRANSITIVELY}) {
+                ObjectName name = objectName(stats.getName());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(stats, name);
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register MapUtils MBeans", e);
+        }
+    }
+
+    public static void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OperationStats stats : new OperationStats[]{INTERSECT, REMOVE_TRANSITIVELY}) {
+                ObjectName name = objectName(stats.getName());
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister MapUtils MBeans", e);
+        }
+    }
+
+    public static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName("collections:type=MapUtils,operation=" + operation);
+    }
+
+    static Probe startIntersect(long inputSize) {
+        return new Probe(INTERSECT, inputSize);
+    }
+
+    static Probe startRemoveTransitively(long inputSize) {
+        return new Probe(REMOVE_TRANSITIVELY, inputSize);
+    }
+
+    /**
+     * Measures a single operation call. Only created while instrumentation is enabled.
+     */
+    static final class Probe {
+
+        private final OperationStats stats;
+        private final long inputSize;
+        private final long start;
+        private final MapUtilsEvent event;
+        private final StringBuilder workListGrowth;
+        private int iterations;
+
+        private Probe(OperationStats stats, long inputSize) {
+            this.stats = stats;
+            this.inputSize = inputSize;
+            this.event = new MapUtilsEvent();
+            this.workListGrowth = event.isEnabled() ? new StringBuilder() : null;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        void iteration(int workListSize) {
+            iterations++;
+            if (workListGrowth != null) {
+                if (workListGrowth.length() > 0) workListGrowth.append(',');
+                workListGrowth.append(workListSize);
+            }
+        }
+
+        void finish(long outputSize) {
+            long nanos = System.nanoTime() - start;
+            stats.record(nanos, inputSize, outputSize, iterations);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = stats.getName();
+                event.inputSize = inputSize;
+                event.outputSize = outputSize;
+                event.iterations = iterations;
+                event.workListGrowth = workListGrowth == null ? "" : workListGrowth.toString();
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package collections;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationStats implements OperationStatsMBean {
+
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder inputElements = new LongAdder();
+    private final LongAdder outputElements = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    OperationStats(String name) {
+        this.name = name;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void record(long nanos, long inputSize, long outputSize, long iterationCount) {
+        invocations.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        inputElements.add(inputSize);
+        outputElements.add(outputSize);
+        iterations.add(iterationCount);
+        histogram[bucketOf(nanos)].increment();
+    }
+
+    private static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    @Override
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        long count = getInvocations();
+        return count == 0 ? 0.0 : (double) getTotalNanos() / count;
+    }
+
+    @Override
+    public long getInputElements() {
+        return inputElements.sum();
+    }
+
+    @Override
+    public long getOutputElements() {
+        return outputElements.sum();
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    @Override
+    public long getLatencyPercentileNanos(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+        }
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) return 0;
+
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= threshold && counts[i] > 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public void reset() {
+        invocations.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        inputElements.reset();
+        outputElements.reset();
+        iterations.reset();
+        for (LongAdder bucket : histogram) {
+            bucket.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[invocations=%d, meanNanos=%.1f, maxNanos=%d, inputElements=%d, outputElements=%d, iterations=%d]",
+                name, getInvocations(), getMeanNanos(), getMaxNanos(), getInputElements(), getOutputElements(), getIterations());
+    }
+}
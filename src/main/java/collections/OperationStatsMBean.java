@@ -0,0 +1,31 @@
+package collections;
+
+public interface OperationStatsMBean {
+
+    long getInvocations();
+
+    long getTotalNanos();
+
+    long getMaxNanos();
+
+    double getMeanNanos();
+
+    long getInputElements();
+
+    long getOutputElements();
+
+    long getIterations();
+
+    /**
+     * Latency histogram with power-of-two buckets: bucket {@code i} counts the calls
+     * that took between {@code 2^i} (inclusive) and {@code 2^(i+1)} (exclusive) nanoseconds.
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * Upper bound of the bucket containing the given percentile, in nanoseconds.
+     */
+    long getLatencyPercentileNanos(double percentile);
+
+    void reset();
+}
@@ -0,0 +1,424 @@
+package collections;
+
+import java.util.*;
+
+/**
+ * {@link List} backed by a persistent AVL tree of array chunks (a rope). Inserting and
+ * removing single elements, {@link #removeRange(int, int)} (and therefore
+ * {@code subList(from, to).clear()}), {@link #splitOff(int)}, {@link #concat(RopeList, RopeList)}
+ * and {@link #rotate(int)} all run in O(log n); {@link #get(int)} and {@link #set(int, Object)}
+ * as well.
+ * <p>
+ * Tree nodes are never modified once built, so {@link #snapshot()} and
+ * {@link #snapshot(int, int)} share their structure with this list and stay valid no matter
+ * how either list is changed afterwards. {@link #subList(int, int)} keeps the usual fail-fast
+ * view semantics of {@link AbstractList}.
+ */
+public class RopeList<E> extends AbstractList<E> {
+
+    static final int CHUNK_SIZE = 64;
+
+    private Node root;
+
+    public RopeList() {
+
+    }
+
+    public RopeList(Collection<? extends E> c) {
+        root = build(c.toArray());
+    }
+
+    private RopeList(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * New list holding the elements of {@code first} followed by those of {@code second};
+     * both arguments stay unchanged. O(log n).
+     */
+    public static <E> RopeList<E> concat(RopeList<? extends E> first, RopeList<? extends E> second) {
+        return new RopeList<>(join(first.root, second.root));
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkElementIndex(index);
+        Node node = root;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            if (index < branch.left.size) {
+                node = branch.left;
+            } else {
+                index -= branch.left.size;
+                node = branch.right;
+            }
+        }
+        return (E) ((Leaf) node).items[index];
+    }
+
+    @Override
+    public E set(int index, E element) {
+        E previous = get(index);
+        root = set(root, index, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        root = root == null ? new Leaf(new Object[]{element}) : insert(root, index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E previous = get(index);
+        removeRange(index, index + 1);
+        return previous;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size(), c);
+    }
+
+    /**
+     * Inserts all elements of {@code c}; another {@code RopeList} is spliced in without copying
+     * in O(log n), any other collection in O(m + log n).
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        checkPositionIndex(index);
+        Node inserted = c instanceof RopeList ? ((RopeList<?>) c).root : build(c.toArray());
+        if (inserted == null) return false;
+
+        Node[] parts = split(root, index);
+        root = join(join(parts[0], inserted), parts[1]);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) return;
+
+        Node[] head = split(root, fromIndex);
+        Node[] tail = split(head[1], toIndex - fromIndex);
+        root = join(head[0], tail[1]);
+        modCount++;
+    }
+
+    /**
+     * Rotates the elements like {@link Collections#rotate(List, int)}: the element at index
+     * {@code i} moves to {@code (i + distance) mod size()}. O(log n).
+     */
+    public void rotate(int distance) {
+        int size = size();
+        if (size == 0) return;
+        int shift = ((distance % size) + size) % size;
+        if (shift == 0) return;
+
+        Node[] parts = split(root, size - shift);
+        root = join(parts[1], parts[0]);
+    }
+
+    /**
+     * Removes the elements from {@code index} on and returns them as a new list. O(log n).
+     */
+    public RopeList<E> splitOff(int index) {
+        checkPositionIndex(index);
+        Node[] parts = split(root, index);
+        root = parts[0];
+        if (parts[1] != null) modCount++;
+        return new RopeList<>(parts[1]);
+    }
+
+    /**
+     * Independent copy of this list in O(1). Changes to either list are not visible in the other.
+     */
+    public RopeList<E> snapshot() {
+        return new RopeList<>(root);
+    }
+
+    /**
+     * Independent copy of the range {@code [fromIndex, toIndex)} in O(log n). Unlike
+     * {@link #subList(int, int)} it stays usable after structural changes to this list.
+     */
+    public RopeList<E> snapshot(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        Node[] head = split(root, fromIndex);
+        return new RopeList<>(split(head[1], toIndex - fromIndex)[0]);
+    }
+
+    int height() {
+        return root == null ? -1 : root.height;
+    }
+
+    int leafCount() {
+        return leafCount(root);
+    }
+
+    private static int leafCount(Node node) {
+        if (node == null) return 0;
+        if (node instanceof Leaf) return 1;
+        return leafCount(((Branch) node).left) + leafCount(((Branch) node).right);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size()));
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size()));
+        }
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "From index: %d, To index: %d, Size: %d", fromIndex, toIndex, size()));
+        }
+    }
+
+    private static Node build(Object[] items) {
+        if (items.length == 0) return null;
+        return build(items, 0, (items.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+
+    private static Node build(Object[] items, int fromChunk, int toChunk) {
+        if (toChunk - fromChunk == 1) {
+            int from = fromChunk * CHUNK_SIZE;
+            return new Leaf(Arrays.copyOfRange(items, from, Math.min(from + CHUNK_SIZE, items.length)));
+        }
+        int mid = (fromChunk + toChunk) >>> 1;
+        return new Branch(build(items, fromChunk, mid), build(items, mid, toChunk));
+    }
+
+    private static Node set(Node node, int index, Object element) {
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items.clone();
+            items[index] = element;
+            return new Leaf(items);
+        }
+        Branch branch = (Branch) node;
+        return index < branch.left.size
+                ? new Branch(set(branch.left, index, element), branch.right)
+                : new Branch(branch.left, set(branch.right, index - branch.left.size, element));
+    }
+
+    private static Node insert(Node node, int index, Object element) {
+        if (node instanceof Leaf) {
+            Object[] old = ((Leaf) node).items;
+            // appending or prepending to a full chunk starts a new one, so sequential adds fill chunks completely
+            if (old.length == CHUNK_SIZE && index == old.length) {
+                return new Branch(node, new Leaf(new Object[]{element}));
+            }
+            if (old.length == CHUNK_SIZE && index == 0) {
+                return new Branch(new Leaf(new Object[]{element}), node);
+            }
+            Object[] items = new Object[old.length + 1];
+            System.arraycopy(old, 0, items, 0, index);
+            items[index] = element;
+            System.arraycopy(old, index, items, index + 1, old.length - index);
+            if (items.length <= CHUNK_SIZE) return new Leaf(items);
+
+            int half = items.length / 2;
+            return new Branch(
+                    new Leaf(Arrays.copyOfRange(items, 0, half)),
+                    new Leaf(Arrays.copyOfRange(items, half, items.length)));
+        }
+        Branch branch = (Branch) node;
+        return index <= branch.left.size
+                ? balance(insert(branch.left, index, element), branch.right)
+                : balance(branch.left, insert(branch.right, index - branch.left.size, element));
+    }
+
+    /**
+     * Splits into the first {@code index} elements and the rest; either part may be {@code null}.
+     */
+    private static Node[] split(Node node, int index) {
+        if (node == null || index == 0) return new Node[]{null, node};
+        if (index == node.size) return new Node[]{node, null};
+
+        if (node instanceof Leaf) {
+            Object[] items = ((Leaf) node).items;
+            return new Node[]{
+                    new Leaf(Arrays.copyOfRange(items, 0, index)),
+                    new Leaf(Arrays.copyOfRange(items, index, items.length))
+            };
+        }
+        Branch branch = (Branch) node;
+        if (index < branch.left.size) {
+            Node[] parts = split(branch.left, index);
+            return new Node[]{parts[0], join(parts[1], branch.right)};
+        } else if (index == branch.left.size) {
+            return new Node[]{branch.left, branch.right};
+        } else {
+            Node[] parts = split(branch.right, index - branch.left.size);
+            return new Node[]{join(branch.left, parts[0]), parts[1]};
+        }
+    }
+
+    /**
+     * Concatenates two trees in O(|height(a) - height(b)|).
+     */
+    private static Node join(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+
+        if (a instanceof Leaf && b instanceof Leaf && a.size + b.size <= CHUNK_SIZE) {
+            Object[] items = Arrays.copyOf(((Leaf) a).items, a.size + b.size);
+            System.arraycopy(((Leaf) b).items, 0, items, a.size, b.size);
+            return new Leaf(items);
+        }
+        if (a.height > b.height + 1) {
+            Branch branch = (Branch) a;
+            return balance(branch.left, join(branch.right, b));
+        }
+        if (b.height > a.height + 1) {
+            Branch branch = (Branch) b;
+            return balance(join(a, branch.left), branch.right);
+        }
+        return new Branch(a, b);
+    }
+
+    /**
+     * Creates a branch of two balanced trees whose heights differ by at most two.
+     */
+    private static Node balance(Node left, Node right) {
+        if (left.height > right.height + 1) {
+            Branch l = (Branch) left;
+            if (l.left.height >= l.right.height) {
+                return new Branch(l.left, new Branch(l.right, right));
+            }
+            Branch lr = (Branch) l.right;
+            return new Branch(new Branch(l.left, lr.left), new Branch(lr.right, right));
+        }
+        if (right.height > left.height + 1) {
+            Branch r = (Branch) right;
+            if (r.right.height >= r.left.height) {
+                return new Branch(new Branch(left, r.left), r.right);
+            }
+            Branch rl = (Branch) r.left;
+            return new Branch(new Branch(left, rl.left), new Branch(rl.right, r.right));
+        }
+        return new Branch(left, right);
+    }
+
+    private abstract static class Node {
+
+        final int size;
+        final int height;
+
+        Node(int size, int height) {
+            this.size = size;
+            this.height = height;
+        }
+    }
+
+    private static final class Leaf extends Node {
+
+        final Object[] items;
+
+        Leaf(Object[] items) {
+            super(items.length, 0);
+            this.items = items;
+        }
+    }
+
+    private static final class Branch extends Node {
+
+        final Node left;
+        final Node right;
+
+        Branch(Node left, Node right) {
+            super(left.size + right.size, Math.max(left.height, right.height) + 1);
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Walks the leaves chunk by chunk, so a full iteration costs O(n + (n / CHUNK_SIZE) log n).
+     */
+    private class Itr implements Iterator<E> {
+
+        private int cursor;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+        private Node chunkRoot;
+        private Object[] chunk;
+        private int chunkStart;
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            checkForComodification();
+            if (cursor >= size()) throw new NoSuchElementException();
+            // set() and rotate() replace the root without a structural modification
+            if (chunkRoot != root || cursor >= chunkStart + chunk.length) {
+                seek(cursor);
+            }
+            E element = (E) chunk[cursor - chunkStart];
+            lastReturned = cursor++;
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) throw new IllegalStateException();
+            checkForComodification();
+            RopeList.this.remove(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void seek(int index) {
+            Node node = root;
+            int start = 0;
+            while (node instanceof Branch) {
+                Branch branch = (Branch) node;
+                if (index - start < branch.left.size) {
+                    node = branch.left;
+                } else {
+                    start += branch.left.size;
+                    node = branch.right;
+                }
+            }
+            chunkRoot = root;
+            chunk = ((Leaf) node).items;
+            chunkStart = start;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package collections;
+
+/**
+ * Counts the cells holding a given {@link Symbol} inside rectangular regions of a board
+ * such as the one in {@code chessBoard}. The index is built once per board and keeps one
+ * table per symbol; {@code null} cells are not counted.
+ * <p>
+ * Regions are half-open like {@link java.util.List#subList(int, int)}: rows
+ * {@code fromRow} (inclusive) to {@code toRow} (exclusive), same for columns.
+ * <ul>
+ * <li>{@link #prefixSums(Symbol[][])} answers in O(1) but is read-only.</li>
+ * <li>{@link #fenwick(Symbol[][])} answers in O(log rows * log cols) and supports
+ * {@link #set(int, int, Symbol)} in the same time.</li>
+ * </ul>
+ * Counters are {@code int} unless the board has more cells than an {@code int} can count.
+ */
+public abstract class SymbolRegionIndex {
+
+    public enum CounterWidth {
+        /** {@code int} counters if the board is small enough, {@code long} otherwise. */
+        AUTO,
+        INT,
+        LONG
+    }
+
+    protected final int rows;
+    protected final int cols;
+
+    private SymbolRegionIndex(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static SymbolRegionIndex prefixSums(Symbol[][] board) {
+        return prefixSums(board, CounterWidth.AUTO);
+    }
+
+    public static SymbolRegionIndex prefixSums(Symbol[][] board, CounterWidth width) {
+        return new PrefixSumIndex(board, width);
+    }
+
+    public static SymbolRegionIndex fenwick(Symbol[][] board) {
+        return fenwick(board, CounterWidth.AUTO);
+    }
+
+    public static SymbolRegionIndex fenwick(Symbol[][] board, CounterWidth width) {
+        return new FenwickIndex(board, width);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long count(Symbol symbol, int fromRow, int fromCol, int toRow, int toCol) {
+        if (symbol == null) throw new IllegalArgumentException("Symbol must not be null!");
+        checkRange(fromRow, toRow, rows, "row");
+        checkRange(fromCol, toCol, cols, "column");
+        return prefix(symbol, toRow, toCol)
+                - prefix(symbol, fromRow, toCol)
+                - prefix(symbol, toRow, fromCol)
+                + prefix(symbol, fromRow, fromCol);
+    }
+
+    public long count(Symbol symbol) {
+        return count(symbol, 0, 0, rows, cols);
+    }
+
+    /**
+     * Replaces the symbol of a single cell; {@code null} empties the cell.
+     *
+     * @throws UnsupportedOperationException if the index does not support updates
+     */
+    public void set(int row, int col, Symbol symbol) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support updates");
+    }
+
+    /**
+     * Number of cells holding {@code symbol} in rows {@code [0, row)} and columns {@code [0, col)}.
+     */
+    protected abstract long prefix(Symbol symbol, int row, int col);
+
+    private static void checkRange(int from, int to, int size, String dimension) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Invalid %s range [%d, %d) for size %d", dimension, from, to, size));
+        }
+    }
+
+    private static int checkedCols(Symbol[][] board) {
+        if (board == null) throw new IllegalArgumentException("Board must not be null!");
+        int cols = board.length == 0 ? 0 : rowOf(board, 0).length;
+        for (int i = 1; i < board.length; i++) {
+            if (rowOf(board, i).length != cols) {
+                throw new IllegalArgumentException(String.format(
+                        "Board must be rectangular, but row %d has %d instead of %d columns", i, board[i].length, cols));
+            }
+        }
+        return cols;
+    }
+
+    private static Symbol[] rowOf(Symbol[][] board, int row) {
+        if (board[row] == null) throw new IllegalArgumentException(String.format("Row %d must not be null!", row));
+        return board[row];
+    }
+
+    private static Counters[] newCounters(int rows, int cols, CounterWidth width) {
+        boolean useLong;
+        switch (width) {
+            case INT:
+                if ((long) rows * cols > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Board has too many cells for int counters");
+                }
+                useLong = false;
+                break;
+            case LONG:
+                useLong = true;
+                break;
+            default:
+                useLong = (long) rows * cols > Integer.MAX_VALUE;
+        }
+
+        Counters[] counters = new Counters[Symbol.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = useLong ? new LongCounters(rows + 1, cols + 1) : new IntCounters(rows + 1, cols + 1);
+        }
+        return counters;
+    }
+
+    private static final class PrefixSumIndex extends SymbolRegionIndex {
+
+        private final Counters[] sums;
+
+        PrefixSumIndex(Symbol[][] board, CounterWidth width) {
+            super(board == null ? 0 : board.length, checkedCols(board));
+            sums = newCounters(rows, cols, width);
+
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    Symbol cell = board[r][c];
+                    for (Symbol symbol : Symbol.values()) {
+                        Counters s = sums[symbol.ordinal()];
+                        long value = (cell == symbol ? 1 : 0) + s.get(r, c + 1) + s.get(r + 1, c) - s.get(r, c);
+                        s.add(r + 1, c + 1, value);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected long prefix(Symbol symbol, int row, int col) {
+            return sums[symbol.ordinal()].get(row, col);
+        }
+    }
+
+    private static final class FenwickIndex extends SymbolRegionIndex {
+
+        private final Symbol[][] board;
+        private final Counters[] trees;
+
+        FenwickIndex(Symbol[][] board, CounterWidth width) {
+            super(board == null ? 0 : board.length, checkedCols(board));
+            this.board = new Symbol[rows][];
+            for (int r = 0; r < rows; r++) {
+                this.board[r] = board[r].clone();
+            }
+            trees = newCounters(rows, cols, width);
+
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    if (board[r][c] != null) trees[board[r][c].ordinal()].add(r + 1, c + 1, 1);
+                }
+            }
+            // linear-time construction: push every node into its parent, first along rows, then along columns
+            for (Counters tree : trees) {
+                for (int r = 1; r <= rows; r++) {
+                    for (int c = 1; c <= cols; c++) {
+                        int parent = c + (c & -c);
+                        if (parent <= cols) tree.add(r, parent, tree.get(r, c));
+                    }
+                }
+                for (int r = 1; r <= rows; r++) {
+                    int parent = r + (r & -r);
+                    if (parent > rows) continue;
+                    for (int c = 1; c <= cols; c++) {
+                        tree.add(parent, c, tree.get(r, c));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void set(int row, int col, Symbol symbol) {
+            if (row < 0 || row >= rows || col < 0 || col >= cols) {
+                throw new IndexOutOfBoundsException(String.format("Cell (%d, %d) is outside the board", row, col));
+            }
+            Symbol old = board[row][col];
+            if (old == symbol) return;
+            if (old != null) update(trees[old.ordinal()], row + 1, col + 1, -1);
+            if (symbol != null) update(trees[symbol.ordinal()], row + 1, col + 1, 1);
+            board[row][col] = symbol;
+        }
+
+        private void update(Counters tree, int row, int col, long delta) {
+            for (int r = row; r <= rows; r += r & -r) {
+                for (int c = col; c <= cols; c += c & -c) {
+                    tree.add(r, c, delta);
+                }
+            }
+        }
+
+        @Override
+        protected long prefix(Symbol symbol, int row, int col) {
+            Counters tree = trees[symbol.ordinal()];
+            long sum = 0;
+            for (int r = row; r > 0; r -= r & -r) {
+                for (int c = col; c > 0; c -= c & -c) {
+                    sum += tree.get(r, c);
+                }
+            }
+            return sum;
+        }
+    }
+
+    private interface Counters {
+
+        long get(int row, int col);
+
+        void add(int row, int col, long delta);
+    }
+
+    private static final class IntCounters implements Counters {
+
+        private final int[][] counts;
+
+        IntCounters(int rows, int cols) {
+            counts = new int[rows][cols];
+        }
+
+        @Override
+        public long get(int row, int col) {
+            return counts[row][col];
+        }
+
+        @Override
+        public void add(int row, int col, long delta) {
+            counts[row][col] += (int) delta;
+        }
+    }
+
+    private static final class LongCounters implements Counters {
+
+        private final long[][] counts;
+
+        LongCounters(int rows, int cols) {
+            counts = new long[rows][cols];
+        }
+
+        @Override
+        public long get(int row, int col) {
+            return counts[row][col];
+        }
+
+        @Override
+        public void add(int row, int col, long delta) {
+            counts[row][col] += delta;
+        }
+    }
+}
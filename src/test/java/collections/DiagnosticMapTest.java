@@ -0,0 +1,246 @@
+package collections;
+
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiagnosticMapTest {
+
+    @Test
+    public void profile_wellDistributedKeys_areCloseToIdeal() {
+        DiagnosticMap<Integer, Integer> squares = DiagnosticMap.wrap(new HashMap<>());
+        for (int i = 0; i < 1000; i++) {
+            squares.put(i, i * i);
+        }
+
+        HashProfile profile = squares.profile();
+        assertEquals(1000, profile.getEntries());
+        assertEquals(2048, profile.getBuckets());
+        assertEquals(0, profile.getCollisions());
+        assertEquals(1.0, profile.getProbeCost(), 1e-9);
+        assertFalse(profile.hasMutatedKeys());
+        assertFalse(squares.checkAndFallback());
+    }
+
+    @Test
+    public void profile_detectsKeyMutatedAfterInsertion() {
+        DiagnosticMap<MutableKey, Integer> ageByPerson = DiagnosticMap.wrap(new HashMap<>());
+        MutableKey p1 = new MutableKey("A", 1);
+        MutableKey p2 = new MutableKey("B", 2);
+        ageByPerson.put(p1, 10);
+        ageByPerson.put(p2, 20);
+
+        p2.name = "foobar";
+        p2.hash = 99;
+        assertNull(ageByPerson.get(p2));
+
+        HashProfile profile = ageByPerson.profile();
+        assertEquals(1, profile.getMutatedKeys().size());
+        assertTrue(profile.getMutatedKeys().get(0) == p2);
+
+        // rehashing makes the mutated key reachable again
+        assertTrue(ageByPerson.checkAndFallback());
+        assertTrue(ageByPerson.getDelegate() instanceof HashMap);
+        assertEquals(20, ageByPerson.get(p2).intValue());
+        assertFalse(ageByPerson.profile().hasMutatedKeys());
+    }
+
+    @Test
+    public void checkAndFallback_constantHashCode_switchesToTreeMapWithComparator() {
+        DiagnosticMap<MutableKey, Integer> map = DiagnosticMap.wrap(
+                new HashMap<>(), DiagnosticMap.DEFAULT_PROBE_COST_THRESHOLD, Comparator.<MutableKey>naturalOrder());
+        map.setCheckInterval(0);
+        for (int i = 0; i < 100; i++) {
+            map.put(new MutableKey("k" + i, 42), i);
+        }
+
+        HashProfile profile = map.profile();
+        assertEquals(1, profile.getDistinctHashCodes());
+        assertEquals(100, profile.getMaxChainLength());
+        assertEquals(99, profile.getCollisions());
+        assertEquals(50.5, profile.getProbeCost(), 1e-9);
+
+        assertTrue(map.checkAndFallback());
+        assertTrue(map.getDelegate() instanceof TreeMap);
+        assertEquals(100, map.size());
+        assertEquals(7, map.get(new MutableKey("k7", 42)).intValue());
+    }
+
+    @Test
+    public void checkAndFallback_withoutComparator_keepsHashMapContract() {
+        DiagnosticMap<MutableKey, Integer> map = DiagnosticMap.wrap(new HashMap<>());
+        for (int i = 0; i < 100; i++) {
+            map.put(new MutableKey("k" + i, 42), i);
+        }
+        map.put(null, -1);
+
+        assertTrue(map.profile().getProbeCost() > DiagnosticMap.DEFAULT_PROBE_COST_THRESHOLD);
+        assertFalse(map.checkAndFallback());
+        assertTrue(map.getDelegate() instanceof HashMap);
+        assertEquals(-1, map.get(null).intValue());
+        assertNull(map.get("foreign"));
+    }
+
+    @Test
+    public void put_checksAutomaticallyAfterInterval() {
+        DiagnosticMap<MutableKey, Integer> map = DiagnosticMap.wrap(
+                new HashMap<>(), DiagnosticMap.DEFAULT_PROBE_COST_THRESHOLD, Comparator.<MutableKey>naturalOrder());
+        map.setCheckInterval(16);
+        for (int i = 0; i < 15; i++) {
+            map.put(new MutableKey("k" + i, 42), i);
+        }
+        assertTrue(map.getDelegate() instanceof HashMap);
+
+        map.put(new MutableKey("k15", 42), 15);
+        assertTrue(map.getDelegate() instanceof TreeMap);
+        assertEquals(16, map.size());
+    }
+
+    @Test
+    public void put_mutatedKeyAgain_flagsStaleMapping() {
+        DiagnosticMap<MutableKey, Integer> ageByPerson = DiagnosticMap.wrap(new HashMap<>());
+        MutableKey p1 = new MutableKey("A", 1);
+        MutableKey p2 = new MutableKey("B", 2);
+        ageByPerson.put(p1, 10);
+        ageByPerson.put(p2, 20);
+
+        p2.name = "foobar";
+        p2.hash = 99;
+        ageByPerson.put(p2, 30);
+        assertEquals(3, ageByPerson.size());
+
+        HashProfile profile = ageByPerson.profile();
+        assertEquals(3, profile.getEntries());
+        assertEquals(1, profile.getMutatedKeys().size());
+        assertTrue(profile.getMutatedKeys().get(0) == p2);
+
+        assertTrue(ageByPerson.checkAndFallback());
+        assertEquals(2, ageByPerson.size());
+        assertEquals(30, ageByPerson.get(p2).intValue());
+        assertEquals(2, ageByPerson.profile().getEntries());
+        assertFalse(ageByPerson.profile().hasMutatedKeys());
+    }
+
+    @Test
+    public void checkAndFallback_staleBucketIteratedLast_keepsNewestValue() {
+        DiagnosticMap<MutableKey, Integer> map = DiagnosticMap.wrap(new HashMap<>());
+        map.setCheckInterval(0);
+        MutableKey p = new MutableKey("p", 3);
+        map.put(p, 20);
+
+        // the stale mapping in bucket 3 comes after the new one in bucket 2
+        p.hash = 2;
+        map.put(p, 30);
+        assertEquals(30, map.get(p).intValue());
+
+        assertTrue(map.checkAndFallback());
+        assertEquals(1, map.size());
+        assertEquals(30, map.get(p).intValue());
+    }
+
+    @Test
+    public void put_automaticCheck_toleratesDirectModificationOfWrappedMap() {
+        Map<Integer, Integer> squares = new HashMap<>();
+        DiagnosticMap<Integer, Integer> map = DiagnosticMap.wrap(squares);
+        map.setCheckInterval(1);
+        squares.put(1, 1);
+
+        map.put(2, 4);
+        assertTrue(map.containsKey(2));
+        assertEquals(2, map.profile().getEntries());
+    }
+
+    @Test
+    public void remove_withEqualButNotIdenticalKey() {
+        DiagnosticMap<MutableKey, Integer> map = DiagnosticMap.wrap(new HashMap<>());
+        for (int i = 0; i < 2000; i++) {
+            map.put(key(i), i);
+        }
+        map.remove(key(1000));
+        map.keySet().remove(key(1001));
+        map.entrySet().remove(new AbstractMap.SimpleEntry<>(key(1002), 1002));
+
+        assertEquals(1997, map.size());
+        assertEquals(1997, map.profile().getEntries());
+        assertTrue(map.entrySet().contains(new AbstractMap.SimpleEntry<>(key(5), 5)));
+        assertFalse(map.entrySet().contains(new AbstractMap.SimpleEntry<>(key(1000), 1000)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void profile_detectsDirectModificationOfWrappedMap() {
+        Map<Integer, Integer> squares = new HashMap<>();
+        DiagnosticMap<Integer, Integer> map = DiagnosticMap.wrap(squares);
+        squares.put(1, 1);
+        map.profile();
+    }
+
+    @Test
+    public void removal_isTrackedThroughViews() {
+        DiagnosticMap<Integer, Integer> map = DiagnosticMap.wrap(new HashMap<>());
+        map.put(1, 1);
+        map.put(2, 4);
+        map.put(3, 9);
+
+        map.remove(1);
+        Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        it.next();
+        it.remove();
+
+        assertEquals(1, map.size());
+        assertEquals(1, map.profile().getEntries());
+    }
+
+    @Test
+    public void wrappedMaps_canBeFedIntoMapUtils() {
+        Map<Integer, Integer> m1 = new HashMap<>();
+        m1.put(1, 1);
+        m1.put(2, 2);
+        Map<Integer, Integer> m2 = new HashMap<>();
+        m2.put(2, 2);
+
+        Map<Integer, Integer> intersection = MapUtils.intersect(DiagnosticMap.wrap(m1), DiagnosticMap.wrap(m2));
+        assertEquals(1, intersection.size());
+        assertEquals(2, intersection.get(2).intValue());
+    }
+
+    private MutableKey key(int i) {
+        return new MutableKey("k" + i, i);
+    }
+
+    private static class MutableKey implements Comparable<MutableKey> {
+
+        private String name;
+        private int hash;
+
+        MutableKey(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof MutableKey)) return false;
+            return name.equals(((MutableKey) other).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public int compareTo(MutableKey other) {
+            return name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package collections;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EntryBloomFilterTest {
+
+    @Test
+    public void noFalseNegatives_andFalsePositivesNearTarget() {
+        Map<Integer, String> map = numbers(0, 10_000);
+        EntryBloomFilter filter = EntryBloomFilter.of(map, 0.01);
+
+        map.forEach((k, v) -> assertTrue(filter.mightContain(k, v)));
+
+        int falsePositives = 0;
+        for (int i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain(i, "n" + i)) falsePositives++;
+        }
+        assertTrue("false-positive rate was " + falsePositives / 100_000.0, falsePositives < 2_000);
+    }
+
+    @Test
+    public void valueIsPartOfTheFingerprint() {
+        Map<Integer, String> map = numbers(0, 1000);
+        EntryBloomFilter filter = EntryBloomFilter.of(map, 0.001);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.mightContain(i, "other" + i)) falsePositives++;
+        }
+        assertTrue(falsePositives < 20);
+    }
+
+    @Test
+    public void byteBuffer_roundTrip() {
+        Map<Integer, String> map = numbers(0, 500);
+        EntryBloomFilter filter = EntryBloomFilter.of(map, 0.05);
+
+        ByteBuffer buffer = filter.toByteBuffer();
+        assertEquals(filter.getSerializedSize(), buffer.remaining());
+
+        EntryBloomFilter copy = EntryBloomFilter.fromByteBuffer(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(filter.getHashCount(), copy.getHashCount());
+        assertEquals(filter.getBitCount(), copy.getBitCount());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(filter.mightContain(i, "n" + i), copy.mightContain(i, "n" + i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromByteBuffer_rejectsForeignData() {
+        EntryBloomFilter.fromByteBuffer(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromByteBuffer_rejectsWordCountBeyondBuffer() {
+        ByteBuffer buffer = EntryBloomFilter.of(numbers(0, 100), 0.01).toByteBuffer();
+        buffer.putInt(8, Integer.MAX_VALUE);
+        EntryBloomFilter.fromByteBuffer(buffer);
+    }
+
+    @Test
+    public void enums_areFingerprintedByName() {
+        Map<Symbol, Symbol> board = new EnumMap<>(Symbol.class);
+        board.put(Symbol.A, Symbol.B);
+        board.put(Symbol.C, Symbol.D);
+        EntryBloomFilter filter = EntryBloomFilter.of(board, 0.001);
+
+        // only the names go into the fingerprint, so a filter built in another JVM has the same bits
+        EntryBloomFilter byName = EntryBloomFilter.create(board.size(), 0.001, o -> ((Enum<?>) o).name().hashCode());
+        board.forEach(byName::add);
+        assertEquals(byName.toByteBuffer(), filter.toByteBuffer());
+
+        Map<Symbol, Symbol> local = new HashMap<>();
+        local.put(Symbol.A, Symbol.B);
+        local.put(Symbol.B, Symbol.B);
+        Map<Symbol, Symbol> intersection = MapUtils.intersect(local, board, EntryBloomFilter.fromByteBuffer(filter.toByteBuffer()));
+        assertEquals(1, intersection.size());
+        assertEquals(Symbol.B, intersection.get(Symbol.A));
+    }
+
+    @Test
+    public void customHash_isUsedForKeysAndValues() {
+        Map<Integer, String> map = numbers(0, 100);
+        EntryBloomFilter filter = EntryBloomFilter.of(map, 0.01, o -> o.toString().length());
+        EntryBloomFilter copy = EntryBloomFilter.fromByteBuffer(filter.toByteBuffer(), o -> o.toString().length());
+        map.forEach((k, v) -> assertTrue(copy.mightContain(k, v)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_rejectsInvalidFalsePositiveRate() {
+        EntryBloomFilter.create(100, 1.0);
+    }
+
+    @Test
+    public void intersectWithFilter_matchesExactIntersect() {
+        Map<Integer, String> m1 = numbers(0, 2000);
+        Map<Integer, String> m2 = numbers(1500, 5000);
+        m2.put(1600, "changed");
+
+        Map<Integer, String> filtered = MapUtils.intersect(m1, m2, EntryBloomFilter.of(m2, 0.01));
+        assertEquals(MapUtils.intersect(m1, m2), filtered);
+        assertEquals(499, filtered.size());
+        assertTrue(MapUtils.prefilter(m1, EntryBloomFilter.of(m2, 0.01)).size() < 600);
+    }
+
+    private Map<Integer, String> numbers(int from, int to) {
+        Map<Integer, String> numbers = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            numbers.put(i, "n" + i);
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,169 @@
+package collections;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compares {@link MapUtils#intersect(Map, Map)} against
+ * {@link MapUtils#intersect(Map, Map, EntryBloomFilter)} when the second map lives "remotely":
+ * it is a {@link RemoteMap} that encodes everything crossing the boundary into a
+ * {@link ByteBuffer} and counts the bytes.
+ * <p>
+ * Not a unit test; run it after {@code mvn test-compile} with
+ * {@code java -cp target/classes:target/test-classes collections.IntersectBenchmark}.
+ */
+public class IntersectBenchmark {
+
+    private static final int LOCAL_SIZE = 100_000;
+    private static final int REMOTE_SIZE = 1_000_000;
+    private static final double OVERLAP = 0.01;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        Map<Integer, String> local = new HashMap<>();
+        for (int i = 0; i < LOCAL_SIZE; i++) {
+            int key = i < LOCAL_SIZE * OVERLAP ? i : REMOTE_SIZE + i;
+            local.put(key, "value-" + key);
+        }
+        Map<Integer, String> backing = new HashMap<>();
+        for (int i = 0; i < REMOTE_SIZE; i++) {
+            backing.put(i, "value-" + i);
+        }
+
+        System.out.printf("local=%d entries, remote=%d entries, overlap=%d entries%n",
+                LOCAL_SIZE, REMOTE_SIZE, (int) (LOCAL_SIZE * OVERLAP));
+        run("ship all", local, backing, 0.0, true);
+        run("lookup all", local, backing, 0.0, false);
+        for (double fpp : new double[]{0.1, 0.01, 0.001}) {
+            run(String.format("bloom %.3f", fpp), local, backing, fpp, false);
+        }
+    }
+
+    private static void run(String name, Map<Integer, String> local, Map<Integer, String> backing, double fpp,
+                            boolean shipAll) {
+        long bytes = 0;
+        long roundTrips = 0;
+        long nanos = 0;
+        int size = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            RemoteMap remote = new RemoteMap(backing);
+            long start = System.nanoTime();
+            Map<Integer, String> result;
+            if (fpp > 0.0) {
+                // the remote side builds and serializes the filter; in practice it would be cached
+                ByteBuffer shipped = remote.transfer(EntryBloomFilter.of(backing, fpp).toByteBuffer());
+                result = MapUtils.intersect(local, remote, EntryBloomFilter.fromByteBuffer(shipped));
+            } else if (shipAll) {
+                result = MapUtils.intersect(local, remote.fetchAll());
+            } else {
+                result = MapUtils.intersect(local, remote);
+            }
+            nanos += System.nanoTime() - start;
+            bytes += remote.transferred;
+            roundTrips += remote.roundTrips;
+            size = result.size();
+        }
+        System.out.printf("%-12s result=%6d  transferred=%,12d bytes  round trips=%,8d  time=%8.2f ms%n",
+                name, size, bytes / ROUNDS, roundTrips / ROUNDS, nanos / ROUNDS / 1e6);
+    }
+
+    /**
+     * Read-only map whose entries are only reachable through encoded requests and responses.
+     * {@link MapUtils#intersect(Map, Map)} only calls {@code entrySet().contains(...)} on its
+     * second argument, which becomes one round trip per local entry.
+     */
+    private static class RemoteMap extends AbstractMap<Integer, String> {
+
+        private final Map<Integer, String> backing;
+        private long transferred;
+        private long roundTrips;
+
+        RemoteMap(Map<Integer, String> backing) {
+            this.backing = backing;
+        }
+
+        ByteBuffer transfer(ByteBuffer buffer) {
+            roundTrips++;
+            transferred += buffer.remaining();
+            return buffer;
+        }
+
+        Map<Integer, String> fetchAll() {
+            int size = Integer.BYTES;
+            for (String value : backing.values()) {
+                size += 2 * Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(backing.size());
+            for (Map.Entry<Integer, String> entry : backing.entrySet()) {
+                byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(entry.getKey()).putInt(value.length).put(value);
+            }
+            buffer.flip();
+            transfer(buffer);
+
+            int count = buffer.getInt();
+            Map<Integer, String> decoded = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int key = buffer.getInt();
+                byte[] value = new byte[buffer.getInt()];
+                buffer.get(value);
+                decoded.put(key, new String(value, StandardCharsets.UTF_8));
+            }
+            return decoded;
+        }
+
+        @Override
+        public String get(Object key) {
+            ByteBuffer request = transfer(ByteBuffer.allocate(Integer.BYTES).putInt((Integer) key).flip());
+            String value = backing.get(request.getInt());
+
+            byte[] encoded = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer response = ByteBuffer.allocate(Integer.BYTES + encoded.length);
+            response.putInt(value == null ? -1 : encoded.length).put(encoded).flip();
+            transferred += response.remaining();
+
+            int length = response.getInt();
+            if (length < 0) return null;
+            byte[] decoded = new byte[length];
+            response.get(decoded);
+            return new String(decoded, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Integer, String>> entrySet() {
+            return new AbstractSet<Entry<Integer, String>>() {
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Entry) || !(((Entry<?, ?>) o).getKey() instanceof Integer)) return false;
+                    Entry<?, ?> entry = (Entry<?, ?>) o;
+                    String value = get(entry.getKey());
+                    return value != null && Objects.equals(value, entry.getValue());
+                }
+
+                @Override
+                public Iterator<Entry<Integer, String>> iterator() {
+                    throw new UnsupportedOperationException("Iterating a remote map means shipping it; use fetchAll()");
+                }
+
+                @Override
+                public int size() {
+                    return backing.size();
+                }
+            };
+        }
+    }
+}
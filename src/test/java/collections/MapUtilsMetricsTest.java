@@ -0,0 +1,96 @@
+package collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MapUtilsMetricsTest {
+
+    @Before
+    public void setUp() {
+        MapUtilsMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        MapUtilsMetrics.setEnabled(false);
+        MapUtilsMetrics.unregisterMBeans();
+        MapUtilsMetrics.reset();
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        MapUtilsMetrics.setEnabled(false);
+        MapUtils.intersect(squares(), squares());
+        assertEquals(0, MapUtilsMetrics.intersect().getInvocations());
+    }
+
+    @Test
+    public void intersect_recordsSizesAndLatency() {
+        MapUtilsMetrics.setEnabled(true);
+        MapUtils.intersect(squares(), squares());
+        MapUtils.intersect(squares(), new HashMap<>());
+
+        OperationStatsMBean stats = MapUtilsMetrics.intersect();
+        assertEquals(2, stats.getInvocations());
+        assertEquals(4 + 4 + 4, stats.getInputElements());
+        assertEquals(4, stats.getOutputElements());
+        assertTrue(stats.getMaxNanos() <= stats.getTotalNanos());
+        assertTrue(stats.getLatencyPercentileNanos(100) >= stats.getMaxNanos());
+
+        long histogramCount = 0;
+        for (long count : stats.getLatencyHistogram()) {
+            histogramCount += count;
+        }
+        assertEquals(2, histogramCount);
+    }
+
+    @Test
+    public void removeTransitively_recordsFixedPointIterations() {
+        Map<String, String> managerByEmployee = new HashMap<>();
+        managerByEmployee.put("Fred", "Berthold");
+        managerByEmployee.put("Berthold", "Tom");
+        managerByEmployee.put("Daniel", "Tom");
+
+        MapUtilsMetrics.setEnabled(true);
+        Map<String, String> removeTom = MapUtils.removeTransitively(managerByEmployee, "Tom");
+
+        OperationStatsMBean stats = MapUtilsMetrics.removeTransitively();
+        assertEquals(0, removeTom.size());
+        assertEquals(1, stats.getInvocations());
+        assertEquals(3, stats.getInputElements());
+        assertEquals(0, stats.getOutputElements());
+        // {Tom} -> {Tom, Berthold, Daniel} -> {Tom, Berthold, Daniel, Fred} -> no change
+        assertEquals(3, stats.getIterations());
+    }
+
+    @Test
+    public void registerMBeans_exposesStatsViaJmx() throws Exception {
+        MapUtilsMetrics.registerMBeans();
+        MapUtilsMetrics.registerMBeans();
+        MapUtilsMetrics.setEnabled(true);
+        MapUtils.intersect(squares(), squares());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object invocations = server.getAttribute(
+                MapUtilsMetrics.objectName("intersect"), "Invocations");
+        assertEquals(1L, invocations);
+    }
+
+    private Map<Integer, Integer> squares() {
+        Map<Integer, Integer> squares = new HashMap<>();
+        squares.put(-1, 1);
+        squares.put(0, 0);
+        squares.put(1, 1);
+        squares.put(2, 4);
+        return squares;
+    }
+}
@@ -0,0 +1,160 @@
+package collections;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static junit.framework.TestCase.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RopeListTest {
+
+    @Test
+    public void randomOperations_behaveLikeArrayList() {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        RopeList<Integer> rope = new RopeList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            int size = expected.size();
+            switch (random.nextInt(7)) {
+                case 0:
+                case 1:
+                    int index = random.nextInt(size + 1);
+                    expected.add(index, i);
+                    rope.add(index, i);
+                    break;
+                case 2:
+                    if (size > 0) {
+                        int removed = random.nextInt(size);
+                        assertEquals(expected.remove(removed), rope.remove(removed));
+                    }
+                    break;
+                case 3:
+                    if (size > 0) {
+                        int set = random.nextInt(size);
+                        assertEquals(expected.set(set, -i), rope.set(set, -i));
+                    }
+                    break;
+                case 4:
+                    int from = random.nextInt(size + 1);
+                    int to = from + random.nextInt(Math.min(size - from, 10) + 1);
+                    expected.subList(from, to).clear();
+                    rope.subList(from, to).clear();
+                    break;
+                case 5:
+                    int distance = random.nextInt(2 * size + 1) - size;
+                    Collections.rotate(expected, distance);
+                    rope.rotate(distance);
+                    break;
+                default:
+                    List<Integer> block = Stream.iterate(i, n -> n + 1).limit(random.nextInt(200)).collect(Collectors.toList());
+                    int at = random.nextInt(size + 1);
+                    expected.addAll(at, block);
+                    rope.addAll(at, block);
+            }
+            assertEquals(expected.size(), rope.size());
+        }
+        assertEquals(expected, rope);
+        assertTrue(rope.height() <= 2 * log2(rope.size() / RopeList.CHUNK_SIZE + 1) + 2);
+    }
+
+    @Test
+    public void sequentialAdds_fillChunksCompletely() {
+        RopeList<Integer> appended = new RopeList<>();
+        RopeList<Integer> prepended = new RopeList<>();
+        for (int i = 0; i < 100_000; i++) {
+            appended.add(i);
+            prepended.add(0, i);
+        }
+
+        int fullChunks = (100_000 + RopeList.CHUNK_SIZE - 1) / RopeList.CHUNK_SIZE;
+        assertEquals(fullChunks, appended.leafCount());
+        assertEquals(fullChunks, prepended.leafCount());
+        assertEquals(99_999, appended.get(99_999).intValue());
+        assertEquals(99_999, prepended.get(0).intValue());
+    }
+
+    @Test
+    public void subListClear_onLargeList() {
+        RopeList<Integer> ints = new RopeList<>(Stream.iterate(0, n -> n + 1).limit(1_000_000).collect(Collectors.toList()));
+        for (int k = 0; k < 1000; k++) {
+            ints.subList(0, 100).clear();
+        }
+        assertEquals(900_000, ints.size());
+        assertEquals(100_000, ints.get(0).intValue());
+        assertEquals(999_999, ints.get(ints.size() - 1).intValue());
+    }
+
+    @Test
+    public void rotate_likeCollectionsRotate() {
+        RopeList<Integer> ints = new RopeList<>(Stream.iterate(0, n -> n + 1).limit(10).collect(Collectors.toList()));
+        ints.rotate(-1);
+        assertEquals(1, ints.get(0).intValue());
+        ints.rotate(2);
+        assertEquals(9, ints.get(0).intValue());
+    }
+
+    @Test
+    public void splitOffAndConcat() {
+        RopeList<String> letters = new RopeList<>(Arrays.asList("a", "b", "c", "d", "e"));
+        RopeList<String> tail = letters.splitOff(2);
+
+        assertEquals(Arrays.asList("a", "b"), letters);
+        assertEquals(Arrays.asList("c", "d", "e"), tail);
+
+        RopeList<String> joined = RopeList.concat(tail, letters);
+        assertEquals(Arrays.asList("c", "d", "e", "a", "b"), joined);
+        assertEquals(Arrays.asList("a", "b"), letters);
+    }
+
+    @Test
+    public void snapshot_staysValidAfterStructuralChanges() {
+        RopeList<Integer> ints = new RopeList<>(Stream.iterate(0, n -> n + 1).limit(10).collect(Collectors.toList()));
+        RopeList<Integer> topThree = ints.snapshot(0, 3);
+        RopeList<Integer> all = ints.snapshot();
+
+        ints.remove(0);
+        ints.remove(1);
+        ints.remove(2);
+        ints.set(0, 99);
+        assertEquals(7, ints.size());
+
+        assertEquals(Arrays.asList(0, 1, 2), topThree);
+        assertEquals(10, all.size());
+        assertEquals(0, all.get(0).intValue());
+
+        topThree.add(3);
+        assertEquals(7, ints.size());
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void subList_isStillFailFast() {
+        RopeList<Integer> ints = new RopeList<>(Arrays.asList(1, 2, 3));
+        List<Integer> view = ints.subList(0, 2);
+        ints.clear();
+        view.size();
+    }
+
+    @Test
+    public void iterator_removeAndSeesSet() {
+        RopeList<Integer> ints = new RopeList<>(Stream.iterate(0, n -> n + 1).limit(200).collect(Collectors.toList()));
+        Iterator<Integer> it = ints.iterator();
+        while (it.hasNext()) {
+            if (it.next() % 2 == 0) it.remove();
+        }
+        assertEquals(100, ints.size());
+        assertEquals(1, ints.get(0).intValue());
+
+        it = ints.iterator();
+        it.next();
+        ints.set(1, -1);
+        assertEquals(-1, it.next().intValue());
+    }
+
+    private int log2(int n) {
+        return 31 - Integer.numberOfLeadingZeros(Math.max(1, n));
+    }
+}
@@ -0,0 +1,101 @@
+package collections;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static collections.Symbol.*;
+import static junit.framework.TestCase.assertEquals;
+
+public class SymbolRegionIndexTest {
+
+    @Test
+    public void chessBoard_countsPerSymbol() {
+        Symbol[][] board = {
+                {A, B},
+                {C, D}
+        };
+
+        SymbolRegionIndex index = SymbolRegionIndex.prefixSums(board);
+        assertEquals(1, index.count(A));
+        assertEquals(1, index.count(D, 1, 1, 2, 2));
+        assertEquals(0, index.count(D, 0, 0, 1, 2));
+        assertEquals(0, index.count(A, 1, 1, 1, 1));
+    }
+
+    @Test
+    public void prefixSumsAndFenwick_matchNestedLoops() {
+        Random random = new Random(42);
+        Symbol[][] board = randomBoard(random, 17, 23);
+        SymbolRegionIndex prefixSums = SymbolRegionIndex.prefixSums(board);
+        SymbolRegionIndex fenwick = SymbolRegionIndex.fenwick(board, SymbolRegionIndex.CounterWidth.LONG);
+
+        for (int i = 0; i < 500; i++) {
+            int r1 = random.nextInt(18);
+            int r2 = r1 + random.nextInt(18 - r1);
+            int c1 = random.nextInt(24);
+            int c2 = c1 + random.nextInt(24 - c1);
+            for (Symbol symbol : Symbol.values()) {
+                long expected = bruteForce(board, symbol, r1, c1, r2, c2);
+                assertEquals(expected, prefixSums.count(symbol, r1, c1, r2, c2));
+                assertEquals(expected, fenwick.count(symbol, r1, c1, r2, c2));
+            }
+        }
+    }
+
+    @Test
+    public void fenwick_pointUpdates() {
+        Random random = new Random(7);
+        Symbol[][] board = randomBoard(random, 9, 13);
+        SymbolRegionIndex fenwick = SymbolRegionIndex.fenwick(board);
+
+        for (int i = 0; i < 200; i++) {
+            int row = random.nextInt(9);
+            int col = random.nextInt(13);
+            Symbol symbol = random.nextInt(5) == 0 ? null : Symbol.values()[random.nextInt(4)];
+            board[row][col] = symbol;
+            fenwick.set(row, col, symbol);
+
+            for (Symbol s : Symbol.values()) {
+                assertEquals(bruteForce(board, s, 0, 0, 9, 13), fenwick.count(s));
+                assertEquals(bruteForce(board, s, 2, 3, 7, 11), fenwick.count(s, 2, 3, 7, 11));
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void prefixSums_areReadOnly() {
+        SymbolRegionIndex.prefixSums(new Symbol[][]{{A}}).set(0, 0, B);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void count_rejectsRegionOutsideBoard() {
+        SymbolRegionIndex.prefixSums(new Symbol[][]{{A, B}}).count(A, 0, 0, 1, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jaggedBoard_isRejected() {
+        SymbolRegionIndex.fenwick(new Symbol[][]{{A, B}, {C}});
+    }
+
+    private Symbol[][] randomBoard(Random random, int rows, int cols) {
+        Symbol[][] board = new Symbol[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int pick = random.nextInt(5);
+                board[r][c] = pick == 4 ? null : Symbol.values()[pick];
+            }
+        }
+        return board;
+    }
+
+    private long bruteForce(Symbol[][] board, Symbol symbol, int fromRow, int fromCol, int toRow, int toCol) {
+        long count = 0;
+        for (int r = fromRow; r < toRow; r++) {
+            for (int c = fromCol; c < toCol; c++) {
+                if (board[r][c] == symbol) count++;
+            }
+        }
+        return count;
+    }
+}